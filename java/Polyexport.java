@@ -0,0 +1,323 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Exports a field of <b>convex</b> polygons, as returned by
+ * <code>generator.getCoordinates()</code>, to an SVG document or to
+ * an ARGB raster. Neither needs AWT or a display, so both are safe to
+ * use on a headless server.
+ * <br>
+ * How to use:
+ * <ol>
+ * <li><code>int[][][] field = generator.getCoordinates();</code></li>
+ * <li><code>Polyexport.writeSvg(field, 600, 350, out);</code></li>
+ * <li><code>int[] argb = Polyexport.rasterize(field, 600, 350);</code>
+ * </li>
+ * </ol>
+ * The raster is laid out row by row, so the pixel at (x, y) is
+ * <code>argb[y * width + x]</code>.
+ */
+public class Polyexport {
+
+    /** Default polygon color, opaque black. */
+    public static final int FILL = 0xFF000000;
+    /** Default background color, opaque white. */
+    public static final int BACKGROUND = 0xFFFFFFFF;
+    /** Side length of the square tiles the raster is split into. */
+    public static final int TILE = 256;
+
+    private Polyexport () {
+    }
+
+    /**
+     * Writes the field as an SVG document with the default colors.
+     * The stream is flushed but not closed.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   out     the stream to write to
+     * @throws  IOException if the stream can't be written to
+     */
+    public static void writeSvg (int[][][] field, int width, int height,
+            OutputStream out) throws IOException {
+        writeSvg(field, width, height, FILL, BACKGROUND, out);
+    }
+
+    /**
+     * Writes the field as a UTF-8 SVG document. The stream is flushed
+     * but not closed.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @param   out     the stream to write to
+     * @throws  IOException if the stream can't be written to
+     */
+    public static void writeSvg (int[][][] field, int width, int height,
+            int fill, int background, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeSvg(field, width, height, fill, background, w);
+    }
+
+    /**
+     * Writes the field as an SVG document with the default colors.
+     * The writer is flushed but not closed.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   out     the writer to write to
+     * @throws  IOException if the writer can't be written to
+     */
+    public static void writeSvg (int[][][] field, int width, int height,
+            Writer out) throws IOException {
+        writeSvg(field, width, height, FILL, BACKGROUND, out);
+    }
+
+    /**
+     * Writes the field as an SVG document. Each shape is written out as
+     * soon as it is reached, so nothing but the field itself is held in
+     * memory. The writer is flushed but not closed.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @param   out     the writer to write to
+     * @throws  IOException if the writer can't be written to
+     */
+    public static void writeSvg (int[][][] field, int width, int height,
+            int fill, int background, Writer out) throws IOException {
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        out.write(width + "\" height=\"" + height + "\" viewBox=\"0 0 ");
+        out.write(width + " " + height + "\">\n");
+        out.write("<rect width=\"100%\" height=\"100%\"");
+        writeColor("fill", background, out);
+        out.write("/>\n<g");
+        writeColor("fill", fill, out);
+        out.write(">\n");
+        for (int[][] shape : field) {
+            out.write("<polygon points=\"");
+            for (int b = 0; b < shape.length; b++) {
+                if (b > 0)
+                    out.write(' ');
+                out.write(Integer.toString(shape[b][0]));
+                out.write(',');
+                out.write(Integer.toString(shape[b][1]));
+            }
+            out.write("\"/>\n");
+        }
+        out.write("</g>\n</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Writes an ARGB color out as an SVG paint attribute, and its
+     * opacity when it isn't opaque.
+     * @param   name    the name of the attribute
+     * @param   argb    the color
+     * @param   out     the writer to write to
+     */
+    private static void writeColor (String name, int argb, Writer out)
+            throws IOException {
+        out.write(" " + name + "=\"#"
+                + String.format("%06x", argb & 0xFFFFFF) + "\"");
+        int alpha = argb >>> 24;
+        if (alpha != 0xFF)
+            out.write(" " + name + "-opacity=\"" + String.format(
+                        Locale.ROOT, "%.3f", alpha / 255d) + "\"");
+    }
+
+    /**
+     * Rasterizes the field with the default colors.
+     * See <code>rasterize(int[][][], int, int, int, int)</code>.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @return the ARGB pixels of the plane, row by row
+     */
+    public static int[] rasterize (int[][][] field, int width, int height) {
+        return rasterize(field, width, height, FILL, BACKGROUND);
+    }
+
+    /**
+     * Rasterizes the field into an ARGB buffer. The plane is split into
+     * square tiles which are filled in parallel, each one only scanning
+     * the polygons whose bounding rectangle reaches into it.
+     * @param   field   the field of polygon coordinates
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @return the ARGB pixels of the plane, row by row
+     * @throws  IllegalArgumentException if the plane has too many pixels
+     * for one array, in which case rasterize it a band at a time
+     */
+    public static int[] rasterize (int[][][] field, int width, int height,
+            int fill, int background) {
+        int[] pixels = new int[size(width, height)];
+        rasterizeTiles(field, bounds(field), 0, 0, width, height,
+                fill, background, pixels);
+        return pixels;
+    }
+
+    /**
+     * Rasterizes one rectangle of the field into a buffer. Use this to
+     * stream an image out a band at a time with a buffer of fixed size,
+     * passing the same <code>bounds(field)</code> to every call. The
+     * rectangle is split into tiles and filled in parallel, like the
+     * whole plane.
+     * @param   field   the field of polygon coordinates
+     * @param   bounds  the bounding rectangles of the field, from
+     * <code>bounds(field)</code>
+     * @param   x       left edge of the rectangle
+     * @param   y       top edge of the rectangle
+     * @param   w       width of the rectangle
+     * @param   h       height of the rectangle
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @param   pixels  the buffer to write to, of at least w * h pixels
+     * @throws  IllegalArgumentException if the buffer is too small
+     */
+    public static void rasterize (int[][][] field, int[][] bounds, int x,
+            int y, int w, int h, int fill, int background, int[] pixels) {
+        if (pixels.length < size(w, h))
+            throw new IllegalArgumentException("a " + w + "x" + h
+                    + " rectangle doesn't fit a buffer of "
+                    + pixels.length + " pixels");
+        rasterizeTiles(field, bounds, x, y, w, h, fill, background, pixels);
+    }
+
+    /**
+     * Finds the bounding rectangle of each polygon in the field. Compute
+     * these once and pass them to every call when rasterizing a field a
+     * band at a time.
+     * @param   field   the field of polygon coordinates
+     * @return an array of {xmin, ymin, xmax, ymax} per polygon
+     */
+    public static int[][] bounds (int[][][] field) {
+        int[][] bounds = new int[field.length][];
+        for (int a = 0; a < field.length; a++) {
+            int xmin = Integer.MAX_VALUE, ymin = Integer.MAX_VALUE,
+                xmax = Integer.MIN_VALUE, ymax = Integer.MIN_VALUE;
+            for (int[] v : field[a]) {
+                xmin = Math.min(xmin, v[0]);
+                xmax = Math.max(xmax, v[0]);
+                ymin = Math.min(ymin, v[1]);
+                ymax = Math.max(ymax, v[1]);
+            }
+            bounds[a] = new int[]{xmin, ymin, xmax, ymax};
+        }
+        return bounds;
+    }
+
+    /**
+     * Finds the number of pixels in a rectangle.
+     * @param   w   width of the rectangle
+     * @param   h   height of the rectangle
+     * @return w * h
+     * @throws  IllegalArgumentException if that doesn't fit in an int
+     */
+    private static int size (int w, int h) {
+        try {
+            return Math.multiplyExact(w, h);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("a " + w + "x" + h
+                    + " raster is too large for one array, rasterize it"
+                    + " a band at a time with rasterize(field, bounds,"
+                    + " x, y, w, h, fill, background, pixels)", e);
+        }
+    }
+
+    /**
+     * Splits a rectangle of the field into square tiles and fills them
+     * in parallel into a buffer the size of the rectangle.
+     * @param   field   the field of polygon coordinates
+     * @param   bounds  the bounding rectangle of each polygon
+     * @param   x       left edge of the rectangle
+     * @param   y       top edge of the rectangle
+     * @param   w       width of the rectangle
+     * @param   h       height of the rectangle
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @param   pixels  the buffer to write to, row by row
+     */
+    private static void rasterizeTiles (final int[][][] field,
+            final int[][] bounds, final int x, final int y, final int w,
+            final int h, final int fill, final int background,
+            final int[] pixels) {
+        final int columns = (w + TILE - 1) / TILE,
+                  rows = (h + TILE - 1) / TILE;
+        IntStream.range(0, columns * rows).parallel().forEach(t -> {
+            int tx = (t % columns) * TILE, ty = (t / columns) * TILE;
+            rasterizeTile(field, bounds, x + tx, y + ty,
+                    Math.min(TILE, w - tx), Math.min(TILE, h - ty),
+                    fill, background, pixels, ty * w + tx, w);
+        });
+    }
+
+    /**
+     * Scanline fills the polygons which reach into a rectangle.
+     * @param   field   the field of polygon coordinates
+     * @param   bounds  the bounding rectangle of each polygon
+     * @param   x       left edge of the rectangle
+     * @param   y       top edge of the rectangle
+     * @param   w       width of the rectangle
+     * @param   h       height of the rectangle
+     * @param   fill    ARGB color of the polygons
+     * @param   background  ARGB color of the plane
+     * @param   pixels  the buffer to write to
+     * @param   offset  index in the buffer of the top left pixel
+     * @param   stride  number of pixels in a row of the buffer
+     */
+    private static void rasterizeTile (int[][][] field, int[][] bounds,
+            int x, int y, int w, int h, int fill, int background,
+            int[] pixels, int offset, int stride) {
+        for (int row = 0; row < h; row++)
+            Arrays.fill(pixels, offset + row * stride,
+                    offset + row * stride + w, background);
+
+        for (int a = 0; a < field.length; a++) {
+            int[] r = bounds[a];
+            //  skip the polygons which don't reach into the tile
+            if (r[2] < x || r[0] >= x + w || r[3] < y || r[1] >= y + h)
+                continue;
+            int[][] shape = field[a];
+            int len = shape.length;
+            int top = Math.max(r[1], y), bottom = Math.min(r[3], y + h - 1);
+            for (int py = top; py <= bottom; py++) {
+                //  sample through the center of the pixel
+                double cy = py + 0.5,
+                       left = Double.POSITIVE_INFINITY,
+                       right = Double.NEGATIVE_INFINITY;
+                //  a convex polygon crosses a scanline at most twice, so
+                //  the span between the outermost crossings is the fill
+                for (int b = 0; b < len; b++) {
+                    int[] p = shape[b], q = shape[(b + 1) % len];
+                    if ((p[1] <= cy) == (q[1] <= cy))
+                        continue;
+                    double cx = p[0] + (cy - p[1]) * (q[0] - p[0])
+                        / (double) (q[1] - p[1]);
+                    left = Math.min(left, cx);
+                    right = Math.max(right, cx);
+                }
+                int from = Math.max((int) Math.ceil(left - 0.5), x),
+                    to = Math.min((int) Math.floor(right - 0.5), x + w - 1);
+                if (from > to)
+                    continue;
+                int base = offset + (py - y) * stride - x;
+                Arrays.fill(pixels, base + from, base + to + 1,
+                        fill);
+            }
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Iterator;
+import java.util.Random;
 
 /**
  * Generates a random field of <b>convex</b> polygons.
@@ -25,6 +26,8 @@ import java.util.Iterator;
  * <li><code>int[] startCoor = generator.getStart();</code></li>
  * <li><code>int[] goalCoor = generator.getGoal();</code></li>
  * </ol>
+ * A region of a rendered field can be re-rolled on its own with
+ * <code>generator.rerender(x, y, w, h);</code>
  * <br>
  * Authored on vim
  * (vim &gt; IDE).
@@ -33,8 +36,15 @@ import java.util.Iterator;
  */
 public class Polygen {
 
+    /** The fewest and most sides of the levels of <code>getHulls</code>. */
+    public static final int MIN_HULL_SIDES = 3, MAX_HULL_SIDES = 5;
+
     private int width, height, maxr, minr;
+    private final Random random;
+    private List<Poly> shapes = new ArrayList<Poly>();
     private int[][][] coordinates = new int[0][][];
+    private int[][] hulls = new int[0][], hullOffsets = new int[0][];
+    private int[] circles = new int[0], boxes = new int[0];
     private int[] start = new int[0], goal = new int[0];
 
     /**
@@ -59,8 +69,30 @@ public class Polygen {
      * @param   height  height of the 2D plane
      */
     public Polygen (int width, int height) {
+        this(width, height, new Random());
+    }
+
+    /**
+     * Creates a generator with width x height dimensions which renders
+     * the same fields every time for the same seed.
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   seed    the seed of the random generator
+     */
+    public Polygen (int width, int height, long seed) {
+        this(width, height, new Random(seed));
+    }
+
+    /**
+     * Creates a generator with width x height dimensions.
+     * @param   width   width of the 2D plane
+     * @param   height  height of the 2D plane
+     * @param   random  the source of all randomness in the field
+     */
+    private Polygen (int width, int height, Random random) {
         this.width = width;
         this.height = height;
+        this.random = random;
     }
 
     /**
@@ -82,48 +114,300 @@ public class Polygen {
      */
     public boolean render (double targetDensity) {
 
-        List<Poly> shapes = new ArrayList<Poly>(51);
-
         maxr = width / 5;
         minr = width / 45;
 
+        shapes = fill(5, 5, width - 5, height - 5, targetDensity);
+
+        System.out.println("Shapes generated: " + shapes.size());
+
+        //  prep the data for export
+        Converter c = new Converter(shapes);
+        //  export to fields
+        export(c);
+        start = c.getStartCoordinates();
+        goal = c.getGoalCoordinates();
+        //  exit
+        return true;
+    }
+
+    /**
+     * Re-rolls a rectangular region of the rendered plane up to a density
+     * of 50% polygon. See <code>rerender(int, int, int, int, double)</code>.
+     * @param   x   left edge of the region
+     * @param   y   top edge of the region
+     * @param   w   width of the region
+     * @param   h   height of the region
+     * @return true when complete, false if no polygon could be placed.
+     */
+    public boolean rerender (int x, int y, int w, int h) {
+        return rerender(x, y, w, h, 0.5);
+    }
+
+    /**
+     * Re-rolls a rectangular region of the rendered plane. Every polygon
+     * touching the region is removed, and the region together with the
+     * area those polygons covered is refilled with new polygons up to the
+     * specified density. Polygons clear of the region are left untouched,
+     * as are the start and goal. If render has not been called yet, this
+     * will call it first.
+     * <p>
+     * The density here is not the one of render: render places polygons
+     * up to its density before the tight fit, which then grows them,
+     * while this measures the polygons after the fit, clipped to the
+     * region. A small or thin region only holds a few polygons and may
+     * not reach the density, in which case the densest of a few tries is
+     * kept as a best effort.
+     * @param   x   left edge of the region
+     * @param   y   top edge of the region
+     * @param   w   width of the region
+     * @param   h   height of the region
+     * @param   targetDensity the goal density of the region after the
+     * fit to take as minimum.
+     * @return true when complete, false if the region is too small to
+     * hold a polygon or none could be placed, in which case the field is
+     * left as it was.
+     */
+    public boolean rerender (int x, int y, int w, int h,
+            double targetDensity) {
+        if (coordinates.length == 0)
+            render();
+
+        //  clip the region to the borders of the map
+        int x1 = Math.max(x, 5), y1 = Math.max(y, 5),
+            x2 = Math.min(x + w, width - 5), y2 = Math.min(y + h, height - 5);
+        if (x2 - x1 < 2 * minr || y2 - y1 < 2 * minr)
+            return false;
+
+        //  take out everything whose bounding rectangle touches the
+        //  region, and grow the area to refill over what they covered
+        List<Poly> kept = new ArrayList<Poly>(shapes.size()),
+            removed = new ArrayList<Poly>();
+        int fx1 = x1, fy1 = y1, fx2 = x2, fy2 = y2;
+        for (Poly p : shapes) {
+            double[][] r = p.reduction();
+            if (r[0][0] <= x2 && r[0][1] >= x1 &&
+                    r[1][0] <= y2 && r[1][1] >= y1) {
+                removed.add(p);
+                fx1 = Math.min(fx1, (int) Math.floor(r[0][0]));
+                fy1 = Math.min(fy1, (int) Math.floor(r[1][0]));
+                fx2 = Math.max(fx2, (int) Math.ceil(r[0][1]));
+                fy2 = Math.max(fy2, (int) Math.ceil(r[1][1]));
+            } else
+                kept.add(p);
+        }
+        fx1 = Math.max(fx1, 5);
+        fy1 = Math.max(fy1, 5);
+        fx2 = Math.min(fx2, width - 5);
+        fy2 = Math.min(fy2, height - 5);
+
+        //  only the kept polygons reaching into that area are neighbours
+        //  of the new ones
+        List<Poly> near = new ArrayList<Poly>();
+        for (Poly p : kept) {
+            double[][] r = p.reduction();
+            if (r[0][0] <= fx2 && r[0][1] >= fx1 &&
+                    r[1][0] <= fy2 && r[1][1] >= fy1)
+                near.add(p);
+        }
+        double before = 0d;
+        for (Poly p : removed)
+            before += p.area();
+        for (Poly p : near)
+            before += p.area(fx1, fy1, fx2, fy2);
+
+        List<Poly> added = refill(new int[]{fx1, fy1, fx2, fy2},
+                new int[]{x1, y1, x2, y2}, near, before, targetDensity);
+        if (added == null)
+            return false;
+
+        kept.addAll(added);
+        shapes = kept;
+        //  re-export the coordinates, keeping the start and goal
+        export(new Converter(shapes));
+        return true;
+    }
+
+    /**
+     * Copies the coordinates and their levels of detail out of a
+     * converter.
+     * @param   c   the converter of the current shapes
+     */
+    private void export (Converter c) {
+        coordinates = c.getCoordinates();
+        hulls = c.getHulls();
+        hullOffsets = c.getHullOffsets();
+        circles = c.getCircles();
+        boxes = c.getBoxes();
+    }
+
+    /**
+     * Fills a region with randomly placed polygons up to a density and
+     * then performs a tight fit of all of them, expanding the radii.
+     * The polygons are kept fully inside of the region.
+     * @param   x1  left edge of the region
+     * @param   y1  top edge of the region
+     * @param   x2  right edge of the region
+     * @param   y2  bottom edge of the region
+     * @param   targetDensity the goal density to take as minimum.
+     * @return the list of new polygons.
+     */
+    private List<Poly> fill (int x1, int y1, int x2, int y2,
+            double targetDensity) {
+
+        List<Poly> list = new ArrayList<Poly>(51);
+        double area = (double) (x2 - x1) * (y2 - y1);
+        int rmaxr = Math.min(maxr, Math.min(x2 - x1, y2 - y1) / 2);
+
         do {
             //  start over if the building is too slow
-            if (shapes.size() > 35)
-                shapes.clear();
+            if (list.size() > 35)
+                list.clear();
             Poly p;
             //  create a new point until it's free from other circles
             do {
-                p = new Poly(ri(5, width - 5), 
-                        ri(5, height - 5), 
-                        ri(minr, maxr));
-                populateVertices(p);
-            } while (isStrongContained(shapes, p));
-            shapes.add(p);
-        } while (density(shapes) < targetDensity);
-
-        System.out.println("Shapes generated: " + shapes.size());
+                p = place(x1, y1, x2, y2, rmaxr);
+            } while (isStrongContained(list, p));
+            list.add(p);
+        } while (density(list, area) < targetDensity);
 
         //  perform a tight fit of all polygons, expanding the radii
-        for (Poly s : shapes) {
-            boolean grown = false;
-            s.grow(2 * s.radius);
-            for (double setr = s.radius; isStrongContained(shapes, s) ||
-                    !strongIsOnMap(s); setr -= 2) {
-                s.grow(setr);
-                grown = true;
+        Iterator<Poly> it = list.iterator();
+        while (it.hasNext())
+            if (!fit(it.next(), list, x1, y1, x2, y2))
+                it.remove();
+
+        return list;
+    }
+
+    /**
+     * Refills an area next to polygons which are kept, placing and
+     * tightly fitting one polygon at a time, until the region inside of
+     * it is covered up to a density and the area as much as it was
+     * before, or at least up to the density. Polygons go into the region
+     * first while it's short, until they keep missing. An attempt ends
+     * once they keep missing anywhere, as the area is then about as full
+     * as it gets; after a few attempts the densest one is kept as a best
+     * effort.
+     * @param   area    {x1, y1, x2, y2} of the area to fill
+     * @param   region  {x1, y1, x2, y2} of the region inside of the area
+     * @param   near    the kept polygons which reach into the area
+     * @param   before  how much of the area was covered before
+     * @param   targetDensity the goal density to take as minimum.
+     * @return the list of new polygons, or null if none could be placed.
+     */
+    private List<Poly> refill (int[] area, int[] region, List<Poly> near,
+            double before, double targetDensity) {
+
+        int x1 = area[0], y1 = area[1], x2 = area[2], y2 = area[3];
+        double areaSize = (double) (x2 - x1) * (y2 - y1),
+               regionGoal = targetDensity * (region[2] - region[0]) *
+                   (region[3] - region[1]);
+        int rmaxr = Math.min(maxr, Math.min(x2 - x1, y2 - y1) / 2);
+
+        //  what the neighbours already cover of the area
+        double nearCovered = 0d;
+        for (Poly p : near)
+            nearCovered += p.area(x1, y1, x2, y2);
+        double goal = Math.max(before, targetDensity * areaSize);
+
+        List<Poly> best = null;
+        boolean bestLacking = true;
+        double bestCovered = 0d;
+        for (int restarts = 0; restarts < 3; restarts++) {
+            List<Poly> list = new ArrayList<Poly>(near);
+            List<Poly> added = new ArrayList<Poly>();
+            double covered = nearCovered, regionCovered = 0d;
+            boolean lacking = true, inRegion = true;
+            for (int misses = 0; misses < 1500; misses++) {
+                lacking = regionCovered < regionGoal;
+                if (!lacking && covered >= goal)
+                    return added;
+                //  once the region is about as full as it gets, go on
+                //  with the rest of the area
+                if (inRegion && misses >= 500) {
+                    inRegion = false;
+                    misses = 0;
+                }
+                //  find a free spot with the smallest circle, then fit
+                //  it as large as the spot allows
+                Poly p = inRegion && lacking
+                    ? place(region[0], region[1], region[2], region[3],
+                            minr)
+                    : place(x1, y1, x2, y2, minr);
+                if (isStrongContained(list, p))
+                    continue;
+                p.grow(rmaxr);
+                if (!fit(p, list, x1, y1, x2, y2))
+                    continue;
+                list.add(p);
+                added.add(p);
+                covered += p.area();
+                regionCovered += p.area(region[0], region[1],
+                        region[2], region[3]);
+                misses = -1;
+            }
+            //  keep the attempt which fills the region, then the area,
+            //  the most
+            lacking = regionCovered < regionGoal;
+            if (!added.isEmpty() && (best == null ||
+                        (bestLacking && !lacking) ||
+                        (bestLacking == lacking && covered > bestCovered))) {
+                best = added;
+                bestLacking = lacking;
+                bestCovered = covered;
             }
-            //  shrink one more
-            if (grown) s.grow(s.radius - 2);
         }
+        return best;
+    }
 
-        //  prep the data for export
-        Converter c = new Converter(shapes);
-        //  export to fields
-        coordinates = c.getCoordinates();
-        start = c.getStartCoordinates();
-        goal = c.getGoalCoordinates();
-        //  exit
+    /**
+     * Creates a polygon at a random spot of a region. The center is kept
+     * off the edges so the tight fit can always shrink it back inside.
+     * @param   x1  left edge of the region
+     * @param   y1  top edge of the region
+     * @param   x2  right edge of the region
+     * @param   y2  bottom edge of the region
+     * @param   rmaxr   the largest radius to give it
+     * @return the new polygon, with its vertices.
+     */
+    private Poly place (int x1, int y1, int x2, int y2, int rmaxr) {
+        Poly p = new Poly(ri(x1 + 1, x2 - 1), ri(y1 + 1, y2 - 1),
+                ri(minr, rmaxr));
+        populateVertices(p);
+        return p;
+    }
+
+    /**
+     * Performs a tight fit of a polygon, doubling its radius and then
+     * shrinking it until it overlaps none of the list and is fully
+     * inside of a region.
+     * @param   s   the polygon to fit
+     * @param   list    the polygons it must not overlap
+     * @param   x1  left edge of the region
+     * @param   y1  top edge of the region
+     * @param   x2  right edge of the region
+     * @param   y2  bottom edge of the region
+     * @return false if it had to shrink away to nothing.
+     */
+    private boolean fit (Poly s, List<Poly> list, int x1, int y1, int x2,
+            int y2) {
+        boolean grown = false;
+        s.grow(2 * s.radius);
+        for (double setr = s.radius; isStrongContained(list, s) ||
+                !strongIsInside(s, x1, y1, x2, y2); setr -= 2) {
+            if (setr < 3)
+                return false;
+            s.grow(setr);
+            grown = true;
+        }
+        //  shrink one more, unless that moves it into another one, as
+        //  it does when the center is outside of the polygon
+        if (grown) {
+            s.grow(s.radius - 2);
+            if (isStrongContained(list, s))
+                s.grow(s.radius + 2);
+        }
         return true;
     }
 
@@ -138,6 +422,92 @@ public class Polygen {
         return coordinates;
     }
 
+    /**
+     * Gets a coarse version of the coordinate field, where each shape
+     * has at most <code>sides</code> vertices, packed as
+     * <code>{x0, y0, x1, y1, ...}</code> for all shapes in a row. The
+     * vertices of shape <code>a</code> run from
+     * <code>getHullOffsets(sides)[a]</code> up to, but not including,
+     * <code>getHullOffsets(sides)[a + 1]</code>. The vertices are a subset
+     * of the shape's own, so these shapes are still convex, sit inside of
+     * the full ones and never overlap. If render has not been called yet,
+     * it will call render first.
+     * @param   sides   the most vertices a shape may have, between
+     * <code>MIN_HULL_SIDES</code> and <code>MAX_HULL_SIDES</code>
+     * @return the simplified polygon coordinates, in the same order as
+     * <code>getCoordinates()</code>
+     */
+    public int[] getHulls(int sides) {
+        if (coordinates.length == 0)
+            render();
+        return hulls[level(sides)];
+    }
+
+    /**
+     * Gets where each shape starts in <code>getHulls(sides)</code>, with
+     * one more entry at the end for where the last shape ends. If render
+     * has not been called yet, it will call render first.
+     * @param   sides   the most vertices a shape may have, between
+     * <code>MIN_HULL_SIDES</code> and <code>MAX_HULL_SIDES</code>
+     * @return the index of the first x coordinate of each shape
+     */
+    public int[] getHullOffsets(int sides) {
+        if (coordinates.length == 0)
+            render();
+        return hullOffsets[level(sides)];
+    }
+
+    /**
+     * Finds the level of the hulls with a number of sides.
+     * @param   sides   the most vertices a shape may have
+     * @return the index of the level
+     */
+    private static int level (int sides) {
+        if (sides < MIN_HULL_SIDES || sides > MAX_HULL_SIDES)
+            throw new IllegalArgumentException("hulls have between "
+                    + MIN_HULL_SIDES + " and " + MAX_HULL_SIDES
+                    + " sides, not " + sides);
+        return MAX_HULL_SIDES - sides;
+    }
+
+    /**
+     * Gets the bounding circle of each shape, packed as
+     * <code>{x0, y0, r0, x1, y1, r1, ...}</code>. If render has not
+     * been called yet, it will call render first.
+     * @return the bounding circles, in the same order as
+     * <code>getCoordinates()</code>
+     */
+    public int[] getCircles() {
+        if (coordinates.length == 0)
+            render();
+        return circles;
+    }
+
+    /**
+     * Gets the bounding rectangle of each shape, packed as
+     * <code>{xmin0, ymin0, xmax0, ymax0, xmin1, ...}</code>. If render
+     * has not been called yet, it will call render first.
+     * @return the bounding rectangles, in the same order as
+     * <code>getCoordinates()</code>
+     */
+    public int[] getBoxes() {
+        if (coordinates.length == 0)
+            render();
+        return boxes;
+    }
+
+    /**
+     * Gets the density of the rendered field, the share of the 2D
+     * plane inside of the borders which is covered by polygons. If
+     * render has not been called yet, it will call render first.
+     * @return the density of the field
+     */
+    public double getDensity() {
+        if (coordinates.length == 0)
+            render();
+        return density(shapes, (double) (width - 10) * (height - 10));
+    }
+
     /**
      * Gets the start coordinates. If render has not been called
      * yet, this will call it.
@@ -199,49 +569,56 @@ public class Polygen {
             double y1, double x2, double y2, double x3, double y3,
             double x4, double y4) {
 
-        double a1, b1, a2, b2, p;
-
-        //  step one: check vertical lines
-        if (isVertical(x1, x2) && isVertical(x3, x4)) {
+        //  step one: find which side of each line the other's endpoints
+        //  are on. These are exact, so steep and vertical lines need no
+        //  special case.
+        double d1 = orientation(x3, y3, x4, y4, x1, y1),
+               d2 = orientation(x3, y3, x4, y4, x2, y2),
+               d3 = orientation(x1, y1, x2, y2, x3, y3),
+               d4 = orientation(x1, y1, x2, y2, x4, y4);
+
+        //  step two: they cross if each line splits the other
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
+                ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+            return true;
 
-            if (!isVertical(x1, x3))
-                return false;
-            //  check if their heights overlap
-            return !(Math.max(y1, y2) < Math.min(y3, y4) ||
-                    Math.max(y3, y4) < Math.min(y1, y2));
-        } else if (isVertical(x1, x2)) {
-
-            a2 = (y4 - y3) / (x4 - x3);
-            b2 = y3 - a2 * x3;
-            p = a2 * x1 + b2;
-            return isOnLine(p, y1, y2) && isOnLine(p, y3, y4);
-        } else if (isVertical(x3, x4)) {
-
-            a1 = (y2 - y1) / (x2 - x1);
-            b1 = y1 - a1 * x1;
-            p = a1 * x3 + b1;
-            return isOnLine(p, y1, y2) && isOnLine(p, y3, y4);
-        }
-
-        //  step two: build equations.
-        a1 = (y2 - y1) / (x2 - x1);
-        b1 = y1 - a1 * x1;
-        a2 = (y4 - y3) / (x4 - x3);
-        b2 = y3 - a2 * x3;
-
-        //  step three: check if lines are parallel
-        if (doubleEquals(a1, a2)) {
-            if (doubleEquals(b1, b2))
-                return !(Math.max(y1, y2) < Math.min(y3, y4) ||
-                    Math.max(y3, y4) < Math.min(y1, y2));
-            return false;
-        }
+        //  step three: otherwise they only meet where an endpoint is on
+        //  the other line, which covers touching and collinear lines
+        return (d1 == 0 && isOnSegment(x3, y3, x4, y4, x1, y1)) ||
+            (d2 == 0 && isOnSegment(x3, y3, x4, y4, x2, y2)) ||
+            (d3 == 0 && isOnSegment(x1, y1, x2, y2, x3, y3)) ||
+            (d4 == 0 && isOnSegment(x1, y1, x2, y2, x4, y4));
+    }
 
-        //  step four: find the intersection
-        p = - (b1 - b2) / (a1 - a2);
+    /**
+     * Finds which side of a line a point is on.
+     * @param x1 the first x coordinate of the line
+     * @param y1 the first y coordinate of the line
+     * @param x2 the second x coordinate of the line
+     * @param y2 the second y coordinate of the line
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return positive on one side, negative on the other and zero on
+     * the line
+     */
+    private static double orientation (double x1, double y1, double x2,
+            double y2, double x, double y) {
+        return (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1);
+    }
 
-        //  step five: return if that intersection is on the lines
-        return isOnLine(p, x1, x2) && isOnLine(p, x3, x4);
+    /**
+     * Checks if a point on a line is on the segment between its
+     * endpoints.
+     * @param x1 the first x coordinate of the segment
+     * @param y1 the first y coordinate of the segment
+     * @param x2 the second x coordinate of the segment
+     * @param y2 the second y coordinate of the segment
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     */
+    private static boolean isOnSegment (double x1, double y1, double x2,
+            double y2, double x, double y) {
+        return isOnLine(x, x1, x2) && isOnLine(y, y1, y2);
     }
 
     /**
@@ -265,7 +642,7 @@ public class Polygen {
             //  provide a way to break out of solutions
             int whilecount = 0;
             do {
-                double angle = Math.random() * Math.PI * 2,
+                double angle = random.nextDouble() * Math.PI * 2,
                        x = Math.cos(angle) * c.radius,
                        y = Math.sin(angle) * c.radius;
                 c.vertices[i] = new Vertex(x + c.x, y + c.y, c.radius, angle);
@@ -342,30 +719,35 @@ public class Polygen {
             y < 5D || y > (double) (height - 5);
     }
 
-    /** Check if a poly is fully on the map.
-     * @return true if the polygon doesn't have a point off the map.
+    /** Check if a poly is fully inside of a rectangle.
+     * @param   p   the polygon
+     * @param   x1  left edge of the rectangle
+     * @param   y1  top edge of the rectangle
+     * @param   x2  right edge of the rectangle
+     * @param   y2  bottom edge of the rectangle
+     * @return true if the polygon doesn't have a point outside of the
+     * rectangle.
      */
-    private boolean strongIsOnMap(Poly p) {
+    private boolean strongIsInside(Poly p, int x1, int y1, int x2, int y2) {
         double[][] reduction = p.reduction();
-        //  when it is on the map
-        if ((reduction[0][0] > 5 && reduction[0][1] < width - 5) &&
-            (reduction[1][0] > 5 && reduction[1][1] < height - 5))
+        //  when it is inside
+        if ((reduction[0][0] > x1 && reduction[0][1] < x2) &&
+            (reduction[1][0] > y1 && reduction[1][1] < y2))
             return true;
         return false;
     }
 
     /**
-     * Find the density of the map from the current list of polygons.
+     * Find the density of a region from the current list of polygons.
      * @param  list the current list of polygons.
-     * @return the density of the map.
+     * @param  area the area of the region.
+     * @return the density of the region.
      */
-    private double density (List<Poly> list) {
-        //  the area of the map, sub borders
-        double mapArea = (width - 10) * (height - 10);
+    private double density (List<Poly> list, double area) {
         double polyArea = 0d;
         for (Poly p : list)
             polyArea += p.area();
-        return polyArea / mapArea;
+        return polyArea / area;
     }
 
     /** Generates a random integer between [min, max] inclusive.
@@ -375,7 +757,7 @@ public class Polygen {
     private int ri (int min, int max) {
         min = (int) min;
         max = (int) max;
-        return (int) (Math.random() * (max - min + 1) + min);
+        return (int) (random.nextDouble() * (max - min + 1) + min);
     }
 
     /**
@@ -450,7 +832,7 @@ public class Polygen {
             this.x = x;
             this.y = y;
             this.radius = r;
-            this.sides = (int) (Math.random() * (7 - 3)) + 3;
+            this.sides = (int) (random.nextDouble() * (7 - 3)) + 3;
             this.vertices = new Vertex[this.sides];
         }
 
@@ -512,39 +894,32 @@ public class Polygen {
             if (this.innerCircled(o) || o.innerCircled(this))
                 return true;
 
-            return !(this.rayIntersections(o) == 0 && 
-                    o.rayIntersections(this) == 0);
+            //  without crossing edges, one is inside the other exactly
+            //  when any of its vertices is
+            return this.contains(o.vertices[0]) ||
+                o.contains(this.vertices[0]);
         }
 
         /**
-         * Checks if Poly b is inside this Poly by counting raytraces out
-         * from o.
-         * @param o the alleged surrounder.
-         * @return the number of intersections of the line from o's center
-         * to a point in the opposite direction of this's center and all of 
-         * this's edges.
+         * Checks if a vertex is inside of this polygon, by checking it is
+         * on the same side of every edge.
+         * @param v the vertex
+         * @return true if the vertex is inside or on an edge.
          */
-        private int rayIntersections (Poly o) {
-            int intersections = 0;
-            int len = this.vertices.length;
-
-            double angle = Math.atan2(this.y - o.y, this.x - o.x);
-            angle += Math.PI;
-            double targetX = (width / 2) * Math.cos(angle) + o.x;
-            double targetY = (width / 2) * Math.sin(angle) + o.y;
-
-            for (int i = 0; i < len; i++)
-                //  check intersection of...
-                if (Polygen.segmentsIntersect(
-                            //  the edges of a
-                            vertices[i].x, vertices[i].y,
-                            vertices[(i + 1) % len].x,
-                            vertices[(i + 1) % len].y,
-                            //  vs the line from b's center to (0,0)
-                            o.x, o.y, targetX, targetY))
-                    intersections++;
-
-            return intersections;
+        private boolean contains (Vertex v) {
+            int len = this.vertices.length, sign = 0;
+            for (int i = 0; i < len; i++) {
+                Vertex a = vertices[i], b = vertices[(i + 1) % len];
+                double cross = (b.x - a.x) * (v.y - a.y) -
+                    (b.y - a.y) * (v.x - a.x);
+                int side = (int) Math.signum(cross);
+                if (side == 0)
+                    continue;
+                if (sign != 0 && side != sign)
+                    return false;
+                sign = side;
+            }
+            return true;
         }
 
         /**
@@ -633,16 +1008,19 @@ public class Polygen {
          * @return the x and y coordinates of the bounding rectangle. 
          */
         public double[][] reduction () {
-            double xmin = 10000D, xmax = -1D, ymin = 10000D, ymax = -1D;
+            double xmin = Double.POSITIVE_INFINITY,
+                   xmax = Double.NEGATIVE_INFINITY,
+                   ymin = Double.POSITIVE_INFINITY,
+                   ymax = Double.NEGATIVE_INFINITY;
             for (int i = 0; i < this.vertices.length; i++) {
                 if (vertices[i].x < xmin)
                     xmin = vertices[i].x;
-                else if (vertices[i].x > xmax)
+                if (vertices[i].x > xmax)
                     xmax = vertices[i].x;
 
                 if (vertices[i].y < ymin)
                     ymin = vertices[i].y;
-                else if (vertices[i].y > ymax)
+                if (vertices[i].y > ymax)
                     ymax = vertices[i].y;
             }
             return new double[][]{
@@ -651,6 +1029,70 @@ public class Polygen {
             };
         }
 
+        /**
+         * Finds the area of the part of the polygon inside of a rectangle,
+         * by clipping it against each edge of the rectangle in turn.
+         * @param   x1  left edge of the rectangle
+         * @param   y1  top edge of the rectangle
+         * @param   x2  right edge of the rectangle
+         * @param   y2  bottom edge of the rectangle
+         * @return the area of this polygon inside of the rectangle.
+         */
+        public double area (double x1, double y1, double x2, double y2) {
+            int l = vertices.length;
+            double[] xs = new double[l], ys = new double[l];
+            for (int i = 0; i < l; i++) {
+                xs[i] = vertices[i].x;
+                ys[i] = vertices[i].y;
+            }
+            //  clip against x > x1, x < x2, y > y1 and y < y2
+            double[][] clipped = {xs, ys};
+            clipped = clip(clipped, 0, x1, 1);
+            clipped = clip(clipped, 0, x2, -1);
+            clipped = clip(clipped, 1, y1, 1);
+            clipped = clip(clipped, 1, y2, -1);
+            xs = clipped[0];
+            ys = clipped[1];
+            double sum = 0d;
+            l = xs.length;
+            for (int i = 0; i < l; i++)
+                sum += xs[i] * ys[(i + 1) % l] - ys[i] * xs[(i + 1) % l];
+            return Math.abs(sum / 2);
+        }
+
+        /**
+         * Clips a polygon against one side of an axis aligned line.
+         * @param   poly    the x and y coordinates of the polygon
+         * @param   axis    0 to clip on x, 1 to clip on y
+         * @param   at      where the line crosses the axis
+         * @param   side    1 to keep what's above the line, -1 below
+         * @return the x and y coordinates of the clipped polygon.
+         */
+        private double[][] clip (double[][] poly, int axis, double at,
+                int side) {
+            int l = poly[0].length;
+            double[] xs = new double[2 * l], ys = new double[2 * l];
+            int n = 0;
+            for (int i = 0; i < l; i++) {
+                int j = (i + 1) % l;
+                double a = side * (poly[axis][i] - at),
+                       b = side * (poly[axis][j] - at);
+                if (a >= 0) {
+                    xs[n] = poly[0][i];
+                    ys[n++] = poly[1][i];
+                }
+                //  the edge crosses the line
+                if ((a < 0) != (b < 0)) {
+                    double t = a / (a - b);
+                    xs[n] = poly[0][i] + t * (poly[0][j] - poly[0][i]);
+                    ys[n++] = poly[1][i] + t * (poly[1][j] - poly[1][i]);
+                }
+            }
+            return new double[][]{
+                Arrays.copyOf(xs, n), Arrays.copyOf(ys, n)
+            };
+        }
+
         /**
          * Finds the area of the polygon. This is found given a simple formula
          * which is O(V).
@@ -674,14 +1116,31 @@ public class Polygen {
     private class Converter {
 
         private int[][][] coors;
+        private int[][] hulls, hullOffsets;
+        private int[] circles, boxes;
 
         /**
-         * Creates a new converter instance.
+         * Creates a new converter instance. The levels of detail are
+         * built in the same pass as the coordinates.
          * @param   shapes  Poly list of circles with vertices
          */
         public Converter (List<Poly> shapes) {
-            coors = new int[shapes.size()][][];
-            for (int a = 0; a < shapes.size(); a++) {
+            int n = shapes.size();
+            int levels = MAX_HULL_SIDES - MIN_HULL_SIDES + 1;
+            coors = new int[n][][];
+            circles = new int[3 * n];
+            boxes = new int[4 * n];
+            hulls = new int[levels][];
+            hullOffsets = new int[levels][n + 1];
+            for (int l = 0; l < levels; l++) {
+                int size = 0;
+                for (Poly p : shapes)
+                    size += 2 * Math.min(p.vertices.length,
+                            MAX_HULL_SIDES - l);
+                hulls[l] = new int[size];
+            }
+
+            for (int a = 0; a < n; a++) {
                 Poly p = shapes.get(a);
                 coors[a] = new int[p.vertices.length][];
                 for (int b = 0; b < p.vertices.length; b++) {
@@ -690,6 +1149,65 @@ public class Polygen {
                             (int) Math.round(p.vertices[b].y)
                         };
                 }
+
+                //  drop vertices a level at a time, from the most sides
+                //  to the fewest
+                List<int[]> kept = new ArrayList<int[]>(Arrays.asList(
+                            coors[a]));
+                for (int l = 0; l < levels; l++) {
+                    simplify(kept, MAX_HULL_SIDES - l);
+                    int at = hullOffsets[l][a];
+                    for (int[] v : kept) {
+                        hulls[l][at++] = v[0];
+                        hulls[l][at++] = v[1];
+                    }
+                    hullOffsets[l][a + 1] = at;
+                }
+
+                //  bound the rounded vertices, not the circle they were
+                //  rounded from
+                int cx = (int) Math.round(p.x), cy = (int) Math.round(p.y);
+                double r = 0d;
+                for (int[] v : coors[a])
+                    r = Math.max(r, Math.hypot(v[0] - cx, v[1] - cy));
+                circles[3 * a] = cx;
+                circles[3 * a + 1] = cy;
+                circles[3 * a + 2] = (int) Math.ceil(r);
+
+                double[][] reduction = p.reduction();
+                boxes[4 * a] = (int) Math.floor(reduction[0][0]);
+                boxes[4 * a + 1] = (int) Math.floor(reduction[1][0]);
+                boxes[4 * a + 2] = (int) Math.ceil(reduction[0][1]);
+                boxes[4 * a + 3] = (int) Math.ceil(reduction[1][1]);
+            }
+        }
+
+        /**
+         * Drops vertices from a shape until it has at most a number of
+         * sides. The vertex dropped each time is the one whose triangle
+         * with its neighbours is the smallest, which is the one that
+         * loses the least area.
+         * @param   kept    the vertices of the shape, in order, which
+         * are dropped from in place
+         * @param   sides   the most vertices to keep
+         */
+        private void simplify (List<int[]> kept, int sides) {
+            while (kept.size() > sides) {
+                int len = kept.size(), index = 0;
+                double min = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < len; i++) {
+                    int[] u = kept.get((i + len - 1) % len),
+                        v = kept.get(i),
+                        w = kept.get((i + 1) % len);
+                    double area = Math.abs((double) (v[0] - u[0]) *
+                            (w[1] - u[1]) - (double) (w[0] - u[0]) *
+                            (v[1] - u[1]));
+                    if (area < min) {
+                        min = area;
+                        index = i;
+                    }
+                }
+                kept.remove(index);
             }
         }
 
@@ -701,6 +1219,40 @@ public class Polygen {
             return coors;
         }
 
+        /**
+         * Accesses the simplified coordinates.
+         * @return  the packed coordinates of all shapes, a level for each
+         * number of sides from <code>MAX_HULL_SIDES</code> down
+         */
+        private int[][] getHulls () {
+            return hulls;
+        }
+
+        /**
+         * Accesses where each shape starts in the simplified coordinates.
+         * @return  the offsets of all shapes, a level for each number of
+         * sides from <code>MAX_HULL_SIDES</code> down
+         */
+        private int[][] getHullOffsets () {
+            return hullOffsets;
+        }
+
+        /**
+         * Accesses the bounding circles.
+         * @return  the x, y and radius of each shape's circle
+         */
+        private int[] getCircles () {
+            return circles;
+        }
+
+        /**
+         * Accesses the bounding rectangles.
+         * @return  the min x, min y, max x and max y of each shape
+         */
+        private int[] getBoxes () {
+            return boxes;
+        }
+
         /**
          * Accesses the coordinates of the start position. This will
          * change if called twice.
@@ -0,0 +1,498 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Randomized checks of the fields <code>Polygen</code> renders, and
+ * performance budgets for rendering at fixed seeds and sizes.
+ * There is no build for the Java generator, so this runs on its own
+ * and exits with a non-zero status when anything fails:
+ * <pre>
+ * javac -d out java/*.java java/test/*.java
+ * java -cp out PolygenTest
+ * </pre>
+ * The invariants are checked on the exported integer coordinates with
+ * exact integer arithmetic, so they don't lean on the geometry of the
+ * generator they are testing.
+ */
+public class PolygenTest {
+
+    /** Number of seeds each invariant is checked over. */
+    private static final int SEEDS = 60;
+    /**
+     * Map sizes the seeds are spread over. The generator only fills maps
+     * which are clearly wider than they are tall in reasonable time.
+     */
+    private static final int[][] SIZES = {
+        {600, 350}, {400, 250}, {800, 400}, {1200, 600}, {2000, 700}
+    };
+    /** How far the reported density may stray from the exported one. */
+    private static final double DENSITY_TOLERANCE = 0.02;
+    /** How far rounding to integers may take a region's density. */
+    private static final double ROUNDING = 0.01;
+    /**
+     * How far a rerender may lower the density of the whole map. The
+     * refill can't always pack the area of the removed polygons as
+     * tightly as the render did, these regions lose up to about 0.04.
+     */
+    private static final double MAP_DENSITY_DROP = 0.05;
+    /**
+     * Density a small or thin region is held to. Only a few polygons fit
+     * into one, so the refill is a best effort; these seeds get at least
+     * about 0.45.
+     */
+    private static final double BEST_EFFORT_DENSITY = 0.4;
+    /** How long a rerender may take before it counts as hung. */
+    private static final long RERENDER_MILLIS = 10000;
+    /** Number of renders timed for the performance budgets. */
+    private static final int BUDGET_RENDERS = 10;
+    /**
+     * Budget of the mean render time of a 600x350 field. These seeds take
+     * 770 to 930 ms, so this leaves room for a noisy run.
+     */
+    private static final double BUDGET_MILLIS = 1150;
+    /**
+     * Budget of the mean allocation of rendering a 600x350 field. The
+     * allocation is the same on every run, 321 MiB for these seeds.
+     */
+    private static final long BUDGET_BYTES = 340L << 20;
+
+    private static int failures = 0;
+    private static final List<Polygen> fields = new ArrayList<Polygen>();
+
+    public static void main (String[] args) {
+        //  render every field once, they are shared by the checks
+        for (int seed = 0; seed < SEEDS; seed++) {
+            int[] size = SIZES[seed % SIZES.length];
+            Polygen gen = new Polygen(size[0], size[1], seed);
+            gen.render();
+            fields.add(gen);
+        }
+        run("convex", () -> forEachField(PolygenTest::checkConvex));
+        run("no overlaps", () -> forEachField(PolygenTest::checkOverlaps));
+        run("within borders", () -> forEachField(PolygenTest::checkBorders));
+        run("density", () -> forEachField(PolygenTest::checkDensity));
+        run("same seed, same field", PolygenTest::checkSeeds);
+        run("rerender", PolygenTest::checkRerender);
+        run("segmentsIntersect", PolygenTest::checkSegments);
+        run("render budget", PolygenTest::checkBudget);
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.err.println("all checks passed");
+    }
+
+    /**
+     * Runs a check and reports it.
+     * @param   name    the name of the check
+     * @param   check   the check, which throws when it fails
+     */
+    private static void run (String name, Runnable check) {
+        try {
+            check.run();
+            System.err.println("PASS " + name);
+        } catch (AssertionError e) {
+            failures++;
+            System.err.println("FAIL " + name + ": " + e.getMessage());
+        }
+    }
+
+    /** A check of one rendered field. */
+    private interface FieldCheck {
+        void check (Polygen gen, int width, int height, String tag);
+    }
+
+    /**
+     * Checks the field rendered for every seed.
+     * @param   check   the check of the field
+     */
+    private static void forEachField (FieldCheck check) {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            int[] size = SIZES[seed % SIZES.length];
+            check.check(fields.get(seed), size[0], size[1],
+                    "seed " + seed + " " + size[0] + "x" + size[1]);
+        }
+    }
+
+    /**
+     * Checks every shape turns the same way at each vertex. Rounding to
+     * integers can bend two nearly coincident vertices the wrong way, so
+     * turns within the rounding error are let through.
+     */
+    private static void checkConvex (Polygen gen, int w, int h,
+            String tag) {
+        int[][][] field = gen.getCoordinates();
+        for (int a = 0; a < field.length; a++) {
+            int[][] s = field[a];
+            expect(s.length >= 3, tag + ": shape " + a + " has "
+                    + s.length + " vertices");
+            int sign = 0;
+            for (int b = 0; b < s.length; b++) {
+                int[] u = s[b], v = s[(b + 1) % s.length],
+                    x = s[(b + 2) % s.length];
+                long cross = cross(u, v, x);
+                //  moving each vertex half a pixel moves the cross
+                //  product by less than the perimeter of the triangle
+                double error = Math.hypot(v[0] - u[0], v[1] - u[1])
+                    + Math.hypot(x[0] - v[0], x[1] - v[1])
+                    + Math.hypot(u[0] - x[0], u[1] - x[1]);
+                if (Math.abs(cross) <= error)
+                    continue;
+                int turn = cross > 0 ? 1 : -1;
+                expect(sign == 0 || sign == turn, tag + ": shape " + a
+                        + " isn't convex " + Arrays.deepToString(s));
+                sign = turn;
+            }
+        }
+    }
+
+    private static void checkOverlaps (Polygen gen, int w, int h,
+            String tag) {
+        int[][][] field = gen.getCoordinates();
+        for (int a = 0; a < field.length; a++)
+            for (int b = a + 1; b < field.length; b++)
+                expect(!overlap(field[a], field[b]), tag + ": shapes "
+                        + a + " and " + b + " overlap "
+                        + Arrays.deepToString(field[a]) + " "
+                        + Arrays.deepToString(field[b]));
+    }
+
+    private static void checkBorders (Polygen gen, int w, int h,
+            String tag) {
+        for (int[][] s : gen.getCoordinates())
+            for (int[] v : s)
+                expect(v[0] >= 5 && v[0] <= w - 5 && v[1] >= 5
+                        && v[1] <= h - 5, tag + ": vertex "
+                        + Arrays.toString(v) + " is off the map");
+    }
+
+    private static void checkDensity (Polygen gen, int w, int h,
+            String tag) {
+        double area = 0;
+        for (int[][] s : gen.getCoordinates()) {
+            long sum = 0;
+            for (int b = 0; b < s.length; b++)
+                sum += (long) s[b][0] * s[(b + 1) % s.length][1]
+                    - (long) s[b][1] * s[(b + 1) % s.length][0];
+            area += Math.abs(sum) / 2d;
+        }
+        double exported = area / ((w - 10d) * (h - 10d));
+        expect(Math.abs(exported - gen.getDensity()) < DENSITY_TOLERANCE,
+                tag + ": reported density " + gen.getDensity()
+                + " but the field covers " + exported);
+        expect(gen.getDensity() > 0 && gen.getDensity() < 1,
+                tag + ": density " + gen.getDensity() + " is impossible");
+    }
+
+    private static void checkSeeds () {
+        for (int seed = 0; seed < SEEDS / 10; seed++) {
+            Polygen a = new Polygen(600, 350, seed),
+                    b = new Polygen(600, 350, seed);
+            a.render();
+            b.render();
+            expect(Arrays.deepEquals(a.getCoordinates(), b.getCoordinates())
+                    && Arrays.equals(a.getStart(), b.getStart())
+                    && Arrays.equals(a.getGoal(), b.getGoal()),
+                    "seed " + seed + " rendered two different fields");
+            a.rerender(100, 100, 200, 150);
+            b.rerender(100, 100, 200, 150);
+            expect(Arrays.deepEquals(a.getCoordinates(), b.getCoordinates()),
+                    "seed " + seed + " rerendered two different fields");
+        }
+    }
+
+    /**
+     * Re-rolls regions of fields and checks the result like a render,
+     * that the region holds the density, the map keeps about as much as
+     * it had, and that nothing clear of the region moved. Each one runs
+     * under a timeout, since a region that can't be filled mustn't hang.
+     */
+    private static void checkRerender () {
+        for (int seed = 0; seed < SEEDS / 4; seed++) {
+            checkRerender(seed, 150, 80, 250, 180, 0.5);
+            //  a small corner, and a thin band along the bottom edge
+            checkRerender(seed, 10, 10, 60, 60, BEST_EFFORT_DENSITY);
+            checkRerender(seed, 0, 300, 600, 50, BEST_EFFORT_DENSITY);
+        }
+        //  a region covering most of the map
+        checkRerender(2, 200, 100, 395, 245, 0.5);
+        //  a corner, and a band the full height of the map
+        checkRerender(3, 0, 0, 100, 100, 0.5);
+        checkRerender(4, 300, 0, 300, 350, 0.5);
+    }
+
+    private static void checkRerender (final int seed, final int x,
+            final int y, final int w, final int h, double least) {
+        final Polygen gen = new Polygen(600, 350, seed);
+        gen.render();
+        final boolean[] done = new boolean[2];
+        Thread t = new Thread(() -> {
+            done[1] = gen.rerender(x, y, w, h);
+            done[0] = true;
+        });
+        t.setDaemon(true);
+        int[][][] before = gen.getCoordinates();
+        t.start();
+        try {
+            t.join(RERENDER_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String tag = "seed " + seed + " rerender " + x + "," + y + " "
+            + w + "x" + h;
+        expect(done[0], tag + ": didn't finish in " + RERENDER_MILLIS
+                + " ms");
+        expect(done[1], tag + ": rerender refused the region");
+
+        int[][][] after = gen.getCoordinates();
+        checkConvex(gen, 600, 350, tag);
+        checkOverlaps(gen, 600, 350, tag);
+        checkBorders(gen, 600, 350, tag);
+        checkDensity(gen, 600, 350, tag);
+
+        int x1 = Math.max(x, 5), y1 = Math.max(y, 5),
+            x2 = Math.min(x + w, 595), y2 = Math.min(y + h, 345);
+        double region = density(after, x1, y1, x2, y2);
+        expect(region >= least - ROUNDING, tag + ": the region only has a "
+                + "density of " + region);
+        double map = density(after, 5, 5, 595, 345),
+               was = density(before, 5, 5, 595, 345);
+        expect(was - map <= MAP_DENSITY_DROP, tag + ": the map fell "
+                + "from a density of " + was + " to " + map);
+
+        //  everything clear of the region survives as it was
+        for (int[][] s : before) {
+            int[] r = bounds(s);
+            if (r[2] < x || r[0] > x + w || r[3] < y || r[1] > y + h)
+                expect(contains(after, s), tag + ": "
+                        + Arrays.deepToString(s) + " was moved");
+        }
+    }
+
+    /**
+     * Checks segmentsIntersect on cases worked out by hand, then against
+     * exact integer orientation tests on random segments. Half of those
+     * are drawn on a small grid, so they often touch, run vertical or lie
+     * on one line.
+     */
+    private static void checkSegments () {
+        //  {x1, y1, x2, y2, x3, y3, x4, y4}, and if they intersect
+        double[][] cases = {
+            //  vertical and vertical, overlapping and on one line apart
+            {0, 0, 0, 10, 0, 5, 0, 15}, {0, 0, 0, 4, 0, 5, 0, 9},
+            //  vertical and vertical, side by side
+            {0, 0, 0, 10, 1, 0, 1, 10},
+            //  vertical and slanted, crossing and short of it
+            {5, 0, 5, 10, 0, 0, 10, 10}, {5, 0, 5, 4, 0, 10, 10, 6},
+            //  a steep edge crossed right next to the other's end
+            {0, 0, 1, 30, 0.2, 10, 20, 12},
+            //  on one line, overlapping and apart
+            {0, 0, 10, 10, 5, 5, 15, 15}, {0, 0, 4, 4, 5, 5, 9, 9},
+            //  parallel
+            {0, 0, 10, 5, 0, 1, 10, 6},
+            //  touching at both endpoints, and an endpoint on the middle
+            {0, 0, 10, 0, 10, 0, 10, 10}, {0, 0, 10, 0, 5, 0, 5, 10},
+            //  crossing in the middle
+            {0, 0, 10, 10, 0, 10, 10, 0}
+        };
+        boolean[] expected = {
+            true, false,
+            false,
+            true, false,
+            true,
+            true, false,
+            false,
+            true, true,
+            true
+        };
+        for (int i = 0; i < cases.length; i++) {
+            double[] c = cases[i];
+            expect(Polygen.segmentsIntersect(c[0], c[1], c[2], c[3], c[4],
+                        c[5], c[6], c[7]) == expected[i],
+                    Arrays.toString(c) + " should "
+                    + (expected[i] ? "" : "not ") + "intersect");
+        }
+
+        Random random = new Random(0);
+        for (int checked = 0; checked < 200000; checked++) {
+            int range = checked % 2 == 0 ? 600 : 6;
+            int[] p = point(random, range), q = point(random, range),
+                r = point(random, range), s = point(random, range);
+            long d1 = cross(p, q, r), d2 = cross(p, q, s),
+                 d3 = cross(r, s, p), d4 = cross(r, s, q);
+            boolean crossing = Math.signum(d1) * Math.signum(d2) < 0
+                && Math.signum(d3) * Math.signum(d4) < 0;
+            boolean touching = (d1 == 0 && within(p, q, r))
+                || (d2 == 0 && within(p, q, s))
+                || (d3 == 0 && within(r, s, p))
+                || (d4 == 0 && within(r, s, q));
+            boolean found = Polygen.segmentsIntersect(p[0], p[1], q[0],
+                    q[1], r[0], r[1], s[0], s[1]);
+            expect(found == (crossing || touching), Arrays.toString(p)
+                    + Arrays.toString(q) + " vs " + Arrays.toString(r)
+                    + Arrays.toString(s) + " should "
+                    + (crossing || touching ? "" : "not ") + "intersect");
+        }
+    }
+
+    /**
+     * Holds the mean render time and allocation of a fixed set of seeds
+     * to a budget, after a warm up.
+     */
+    private static void checkBudget () {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)
+            ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int seed = 0; seed < BUDGET_RENDERS; seed++)
+            new Polygen(600, 350, seed).render();
+
+        long bytes = threads.getThreadAllocatedBytes(id),
+             nanos = System.nanoTime();
+        for (int seed = 0; seed < BUDGET_RENDERS; seed++)
+            new Polygen(600, 350, seed).render();
+        double millis = (System.nanoTime() - nanos) / 1e6 / BUDGET_RENDERS;
+        bytes = (threads.getThreadAllocatedBytes(id) - bytes)
+            / BUDGET_RENDERS;
+
+        System.err.printf("  render: %.2f ms, %d KiB%n", millis,
+                bytes >> 10);
+        expect(millis < BUDGET_MILLIS, "rendering took " + millis
+                + " ms, over the budget of " + BUDGET_MILLIS + " ms");
+        expect(bytes < BUDGET_BYTES, "rendering allocated " + bytes
+                + " bytes, over the budget of " + BUDGET_BYTES);
+    }
+
+    /**
+     * Checks if two convex shapes overlap by more than the rounding to
+     * integers, by looking for an edge of either which separates them.
+     * @param   a   the first shape
+     * @param   b   the second shape
+     * @return true if no edge separates them
+     */
+    private static boolean overlap (int[][] a, int[][] b) {
+        return !separates(a, b) && !separates(b, a);
+    }
+
+    /**
+     * Checks if an edge of a shape has all of another shape on its
+     * outer side, or no more than a pixel inside of it.
+     * @param   a   the shape whose edges are tried
+     * @param   b   the other shape
+     * @return true if one of a's edges separates the shapes
+     */
+    private static boolean separates (int[][] a, int[][] b) {
+        int len = a.length;
+        //  the side the inside of a is on
+        long inside = 0;
+        for (int i = 0; inside == 0 && i < len; i++)
+            inside = cross(a[0], a[1], a[(i + 2) % len]);
+        for (int i = 0; i < len; i++) {
+            int[] u = a[i], v = a[(i + 1) % len];
+            //  the cross product over the length is the distance
+            double pixel = Math.hypot(v[0] - u[0], v[1] - u[1]);
+            boolean apart = true;
+            for (int[] p : b)
+                if (cross(u, v, p) * Long.signum(inside) > pixel) {
+                    apart = false;
+                    break;
+                }
+            if (apart)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the density of a rectangle, clipping each shape to it.
+     * @param   field   the shapes
+     * @return the share of the rectangle the shapes cover
+     */
+    private static double density (int[][][] field, double x1, double y1,
+            double x2, double y2) {
+        double area = 0;
+        for (int[][] s : field) {
+            List<double[]> p = new ArrayList<double[]>();
+            for (int[] v : s)
+                p.add(new double[]{v[0], v[1]});
+            //  clip against x > x1, x < x2, y > y1 and y < y2 in turn
+            double[][] lines = {{0, x1, 1}, {0, x2, -1}, {1, y1, 1},
+                {1, y2, -1}};
+            for (double[] line : lines) {
+                int axis = (int) line[0];
+                List<double[]> q = new ArrayList<double[]>();
+                for (int i = 0; i < p.size(); i++) {
+                    double[] u = p.get(i), v = p.get((i + 1) % p.size());
+                    double a = line[2] * (u[axis] - line[1]),
+                           b = line[2] * (v[axis] - line[1]);
+                    if (a >= 0)
+                        q.add(u);
+                    if ((a < 0) != (b < 0)) {
+                        double t = a / (a - b);
+                        q.add(new double[]{u[0] + t * (v[0] - u[0]),
+                            u[1] + t * (v[1] - u[1])});
+                    }
+                }
+                p = q;
+            }
+            double sum = 0;
+            for (int i = 0; i < p.size(); i++) {
+                double[] u = p.get(i), v = p.get((i + 1) % p.size());
+                sum += u[0] * v[1] - u[1] * v[0];
+            }
+            area += Math.abs(sum) / 2;
+        }
+        return area / ((x2 - x1) * (y2 - y1));
+    }
+
+    /**
+     * The z of the cross product of (b - a) and (c - a).
+     */
+    private static long cross (int[] a, int[] b, int[] c) {
+        return (long) (b[0] - a[0]) * (c[1] - a[1])
+            - (long) (b[1] - a[1]) * (c[0] - a[0]);
+    }
+
+    /**
+     * The bounding rectangle of a shape, as {xmin, ymin, xmax, ymax}.
+     */
+    private static int[] bounds (int[][] s) {
+        int[] r = {Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (int[] v : s) {
+            r[0] = Math.min(r[0], v[0]);
+            r[1] = Math.min(r[1], v[1]);
+            r[2] = Math.max(r[2], v[0]);
+            r[3] = Math.max(r[3], v[1]);
+        }
+        return r;
+    }
+
+    private static boolean contains (int[][][] field, int[][] shape) {
+        for (int[][] s : field)
+            if (Arrays.deepEquals(s, shape))
+                return true;
+        return false;
+    }
+
+    private static int[] point (Random random, int range) {
+        return new int[]{random.nextInt(range), random.nextInt(range)};
+    }
+
+    /**
+     * Whether a point on the line through a and b is between them.
+     */
+    private static boolean within (int[] a, int[] b, int[] p) {
+        return Math.min(a[0], b[0]) <= p[0] && p[0] <= Math.max(a[0], b[0])
+            && Math.min(a[1], b[1]) <= p[1] && p[1] <= Math.max(a[1], b[1]);
+    }
+
+    private static void expect (boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+}